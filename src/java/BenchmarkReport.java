@@ -0,0 +1,265 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Report of an evaluation run, written while the run goes on
+ * Human readable text goes to <base>.txt, and every result is also written
+ * as a JSON line to <base>.jsonl and a row of <base>.csv
+ * Results can be compared against the csv of an earlier run to flag regressions
+ */
+public class BenchmarkReport {
+
+    /** Columns of the csv, also the fields of the JSON records. */
+    private static final String[] FIELDS = {"dataset", "classifier", "mode", "cached",
+            "buildMillis", "evaluateMillis", "classifyPerSecond", "peakHeapBytes", "accuracy"};
+
+    private BufferedWriter m_Text;
+    private BufferedWriter m_Json;
+    private BufferedWriter m_Csv;
+
+    /** Results of the baseline run, keyed by dataset, classifier and mode. */
+    private Map<String, String[]> m_Baseline = new HashMap<String, String[]>();
+
+    /** Relative slowdown of build time or throughput tolerated before flagging a regression. */
+    private double m_Tolerance = 0.2;
+
+    /** Build time under which build time isn't compared, being mostly noise. */
+    private double m_MinBuildMillis = 10;
+
+    /** Evaluation time under which throughput isn't compared, being mostly noise and JIT warm up. */
+    private double m_MinEvaluateMillis = 10;
+
+    /**
+     * Opens the report files, replacing those of an earlier run.
+     *
+     * @param basePath path of the report files without extension
+     * @throws IOException if a file can't be opened
+     */
+    public BenchmarkReport(String basePath) throws IOException {
+        m_Text = new BufferedWriter(new FileWriter(basePath + ".txt"));
+        m_Json = new BufferedWriter(new FileWriter(basePath + ".jsonl"));
+        m_Csv = new BufferedWriter(new FileWriter(basePath + ".csv"));
+        m_Csv.write(join(FIELDS));
+        m_Csv.newLine();
+        m_Csv.flush();
+    }
+
+    public void setTolerance(double tolerance) {
+        m_Tolerance = tolerance;
+    }
+
+    /**
+     * Reads the csv of an earlier run to compare the results against.
+     *
+     * @param csvPath path of the csv
+     * @throws IOException if the csv can't be read
+     */
+    public void loadBaseline(String csvPath) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(csvPath));
+        try {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = split(line);
+                if (values.length == FIELDS.length) {
+                    m_Baseline.put(values[0] + "\n" + values[1] + "\n" + values[2], values);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Appends text to the human readable report.
+     *
+     * @param text the text
+     */
+    public void text(String text) {
+        try {
+            m_Text.write(text);
+            m_Text.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the result of an evaluation and flags the regressions from the baseline
+     * in the human readable report.
+     *
+     * @param dataset name of the dataset
+     * @param classifier name of the classifier
+     * @param mode name of the evaluation mode
+     * @param cached whether the model came from the model cache
+     * @param buildNanos time taken to build the model
+     * @param evaluateNanos time taken to classify the test instances
+     * @param numClassified number of instances classified by the evaluation
+     * @param peakHeapBytes heap used during build and evaluation, from peakHeap
+     * @param accuracy percentage of instances correctly classified
+     */
+    public void record(String dataset, String classifier, String mode, boolean cached,
+                       long buildNanos, long evaluateNanos, double numClassified,
+                       long peakHeapBytes, double accuracy) {
+
+        double buildMillis = buildNanos / 1e6;
+        double evaluateMillis = evaluateNanos / 1e6;
+        double classifyPerSecond = evaluateNanos > 0 ? numClassified * 1e9 / evaluateNanos : 0;
+        String[] values = {dataset, classifier, mode, "" + cached, "" + buildMillis,
+                "" + evaluateMillis, "" + classifyPerSecond, "" + peakHeapBytes, "" + accuracy};
+        try {
+            StringBuffer json = new StringBuffer("{");
+            for (int i = 0; i < FIELDS.length; i++) {
+                if (i > 0) {
+                    json.append(",");
+                }
+                json.append(quoteJson(FIELDS[i])).append(":");
+                if (i < 3) {
+                    json.append(quoteJson(values[i]));
+                } else if (values[i].equals("NaN") || values[i].endsWith("Infinity")) {
+                    json.append("null");
+                } else {
+                    json.append(values[i]);
+                }
+            }
+            json.append("}");
+            m_Json.write(json.toString());
+            m_Json.newLine();
+            m_Json.flush();
+
+            m_Csv.write(join(values));
+            m_Csv.newLine();
+            m_Csv.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        String[] baseline = m_Baseline.get(dataset + "\n" + classifier + "\n" + mode);
+        if (baseline == null) {
+            return;
+        }
+        double baseBuildMillis = Double.parseDouble(baseline[4]);
+        double baseEvaluateMillis = Double.parseDouble(baseline[5]);
+        double baseClassifyPerSecond = Double.parseDouble(baseline[6]);
+        double baseAccuracy = Double.parseDouble(baseline[8]);
+        if (!cached && !Boolean.parseBoolean(baseline[3]) && baseBuildMillis >= m_MinBuildMillis
+                && buildMillis > baseBuildMillis * (1 + m_Tolerance)) {
+            text("REGRESSION build time " + buildMillis + " ms, baseline " + baseBuildMillis + " ms\n");
+        }
+        if (evaluateMillis >= m_MinEvaluateMillis && baseEvaluateMillis >= m_MinEvaluateMillis
+                && classifyPerSecond * (1 + m_Tolerance) < baseClassifyPerSecond) {
+            text("REGRESSION classify throughput " + classifyPerSecond + "/s, baseline "
+                    + baseClassifyPerSecond + "/s\n");
+        }
+        if (accuracy < baseAccuracy - 1e-6) {
+            text("REGRESSION accuracy " + accuracy + "%, baseline " + baseAccuracy + "%\n");
+        }
+    }
+
+    public void close() {
+        try {
+            m_Text.close();
+            m_Json.close();
+            m_Csv.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts measuring heap usage: runs the garbage collector so garbage left by
+     * earlier evaluations isn't counted, then resets the peak usage of the heap pools.
+     *
+     * @return the heap used after the collection, to be given to peakHeap
+     */
+    public static long resetPeakHeap() {
+        System.gc();
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Heap used since resetPeakHeap, above what was used at that time.
+     * The pools reach their peaks at different times, so the sum of their
+     * peaks is an upper bound of the real peak.
+     *
+     * @param usedBefore the heap used returned by resetPeakHeap
+     * @return the sum of the peak usage of the heap pools minus usedBefore
+     */
+    public static long peakHeap(long usedBefore) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Math.max(0, peak - usedBefore);
+    }
+
+    private static String quoteJson(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Joins values into a csv row, quoting those holding separators or quotes.
+     */
+    private static String join(String[] values) {
+        StringBuffer row = new StringBuffer();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(",");
+            }
+            if (values[i].indexOf(',') >= 0 || values[i].indexOf('"') >= 0) {
+                row.append("\"").append(values[i].replace("\"", "\"\"")).append("\"");
+            } else {
+                row.append(values[i]);
+            }
+        }
+        return row.toString();
+    }
+
+    /**
+     * Splits a csv row written by join.
+     */
+    private static String[] split(String row) {
+        ArrayList<String> values = new ArrayList<String>();
+        StringBuffer value = new StringBuffer();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values.toArray(new String[values.size()]);
+    }
+}
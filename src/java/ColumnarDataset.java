@@ -0,0 +1,362 @@
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+import weka.filters.supervised.attribute.Discretize;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Read only columnar copy of a dataset stored on disk.
+ * The file holds the ARFF header of the dataset followed by one fixed width
+ * column of doubles per attribute, in the same encoding weka uses for
+ * Instance values (index for nominal, NaN for missing).
+ * Columns are read through memory mapped buffers so the dataset does not
+ * have to fit on the heap.
+ * Values are only read with absolute gets, so one dataset can be
+ * shared by several threads.
+ * Rows are indexed by int, so a dataset holds at most Integer.MAX_VALUE rows,
+ * and training myId3 on it still keeps 8 bytes per row on the heap for the row partition.
+ */
+public class ColumnarDataset {
+
+    /** Marks a file written by convert ("ID3C"). */
+    private static final int MAGIC = 0x49443343;
+
+    /** Version of the file layout. */
+    private static final int VERSION = 1;
+
+    /** Bytes of a single value in a column. */
+    private static final int VALUE_SIZE = 8;
+
+    /** Rows per buffer, a single mapped buffer can not exceed 2GB. */
+    private static final int CHUNK_SHIFT = 27;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    /** Header of the dataset, without instances. */
+    private Instances m_Header;
+
+    /** Number of rows in every column. */
+    private int m_NumRows;
+
+    /** Buffers of each column, split in chunks of 2^CHUNK_SHIFT rows. */
+    private ByteBuffer[][] m_Columns;
+
+    /** Cut points of each discretized attribute, null if not a discretized view. */
+    private double[][] m_CutPoints;
+
+    /** Which attributes are discretized, null if not a discretized view. */
+    private boolean[] m_Discretized;
+
+    private ColumnarDataset(Instances header, int numRows, ByteBuffer[][] columns) {
+        m_Header = header;
+        m_NumRows = numRows;
+        m_Columns = columns;
+    }
+
+    /**
+     * Converts an ARFF/CSV file into a columnar file.
+     * Instances are streamed from the source when its loader supports it,
+     * the last attribute is used as class as in WekaAccessor.loadData
+     *
+     * @param sourcePath path of the ARFF/CSV file
+     * @param targetPath path of the columnar file to be written
+     * @throws Exception if the source can't be read or the target can't be written
+     */
+    public static void convert(String sourcePath, String targetPath) throws Exception {
+        DataSource source = new DataSource(sourcePath);
+        Instances structure = source.getStructure();
+        structure.setClassIndex(structure.numAttributes() - 1);
+        for (int i = 0; i < structure.numAttributes(); i++) {
+            Attribute att = structure.attribute(i);
+            if (!att.isNominal() && !att.isNumeric()) {
+                throw new Exception("Attribute " + att.name() + " is neither nominal nor numeric");
+            }
+        }
+
+        // write every column to its own temporary file, as the number of rows is not known yet
+        File target = new File(targetPath).getAbsoluteFile();
+        File[] columnFiles = new File[structure.numAttributes()];
+        DataOutputStream[] columns = new DataOutputStream[structure.numAttributes()];
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                columnFiles[i] = File.createTempFile("column" + i + "-", ".bin", target.getParentFile());
+                columns[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(columnFiles[i])));
+            }
+            long numRows = 0;
+            while (source.hasMoreElements(structure)) {
+                // rows are indexed by int, stop before writing a row that can't be indexed
+                if (numRows == Integer.MAX_VALUE) {
+                    throw new Exception(sourcePath + " has more than " + Integer.MAX_VALUE
+                            + " rows, the most a columnar dataset can hold");
+                }
+                Instance inst = source.nextElement(structure);
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i].writeDouble(inst.value(i));
+                }
+                numRows++;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].close();
+                columns[i] = null;
+            }
+            write(target, structure, (int) numRows, columnFiles);
+        } finally {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i] != null) {
+                    columns[i].close();
+                }
+                if (columnFiles[i] != null) {
+                    columnFiles[i].delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the header and concatenates the columns into the target file.
+     *
+     * @param target the columnar file
+     * @param structure the header of the dataset
+     * @param numRows the number of rows in each column
+     * @param columnFiles the temporary file of each column
+     * @throws Exception if the file can't be written
+     */
+    private static void write(File target, Instances structure, int numRows, File[] columnFiles)
+            throws Exception {
+
+        byte[] header = structure.toString().getBytes("UTF-8");
+        RandomAccessFile file = new RandomAccessFile(target, "rw");
+        try {
+            file.setLength(0);
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            file.writeInt(numRows);
+            file.writeInt(structure.numAttributes());
+            file.writeInt(structure.classIndex());
+            file.writeInt(header.length);
+            file.write(header);
+            long dataOffset = dataOffset(header.length);
+            FileChannel channel = file.getChannel();
+            for (int i = 0; i < columnFiles.length; i++) {
+                FileInputStream in = new FileInputStream(columnFiles[i]);
+                try {
+                    FileChannel column = in.getChannel();
+                    long position = dataOffset + (long) i * numRows * VALUE_SIZE;
+                    long done = 0;
+                    long size = column.size();
+                    while (done < size) {
+                        done += column.transferTo(done, size - done, channel.position(position + done));
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Offset of the first column, aligned to the size of a value.
+     *
+     * @param headerLength length of the ARFF header in bytes
+     * @return the offset of the first column
+     */
+    private static long dataOffset(int headerLength) {
+        long offset = 6 * 4 + headerLength;
+        return (offset + VALUE_SIZE - 1) / VALUE_SIZE * VALUE_SIZE;
+    }
+
+    /**
+     * Opens a file written by convert, mapping its columns into memory.
+     *
+     * @param path path of the columnar file
+     * @return the dataset backed by the file
+     * @throws Exception if the file can't be read or isn't a columnar file
+     */
+    public static ColumnarDataset open(String path) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+                throw new Exception(path + " is not a columnar dataset");
+            }
+            int numRows = file.readInt();
+            int numAttributes = file.readInt();
+            int classIndex = file.readInt();
+            byte[] header = new byte[file.readInt()];
+            file.readFully(header);
+            Instances structure = new Instances(new StringReader(new String(header, "UTF-8")));
+            structure.setClassIndex(classIndex);
+            if (structure.numAttributes() != numAttributes) {
+                throw new Exception(path + " has a corrupt header");
+            }
+
+            FileChannel channel = file.getChannel();
+            long dataOffset = dataOffset(header.length);
+            int numChunks = (numRows >>> CHUNK_SHIFT) + 1;
+            ByteBuffer[][] columns = new ByteBuffer[numAttributes][numChunks];
+            for (int i = 0; i < numAttributes; i++) {
+                long columnOffset = dataOffset + (long) i * numRows * VALUE_SIZE;
+                for (int c = 0; c < numChunks; c++) {
+                    long first = (long) c << CHUNK_SHIFT;
+                    long rows = Math.min(numRows - first, 1L << CHUNK_SHIFT);
+                    columns[i][c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                            columnOffset + first * VALUE_SIZE, rows * VALUE_SIZE);
+                }
+            }
+            return new ColumnarDataset(structure, numRows, columns);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Copies instances into a columnar dataset on the heap.
+     *
+     * @param data the instances to be copied
+     * @return the dataset, with the same header and class index as data
+     */
+    public static ColumnarDataset fromInstances(Instances data) {
+        int numRows = data.numInstances();
+        int numChunks = (numRows >>> CHUNK_SHIFT) + 1;
+        ByteBuffer[][] columns = new ByteBuffer[data.numAttributes()][numChunks];
+        for (int i = 0; i < columns.length; i++) {
+            for (int c = 0; c < numChunks; c++) {
+                long first = (long) c << CHUNK_SHIFT;
+                long rows = Math.min(numRows - first, 1L << CHUNK_SHIFT);
+                columns[i][c] = ByteBuffer.allocate((int) (rows * VALUE_SIZE));
+            }
+        }
+        for (int row = 0; row < numRows; row++) {
+            Instance inst = data.instance(row);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i][row >>> CHUNK_SHIFT].putDouble((row & CHUNK_MASK) * VALUE_SIZE, inst.value(i));
+            }
+        }
+        return new ColumnarDataset(new Instances(data, 0), numRows, columns);
+    }
+
+    /**
+     * Returns a view of this dataset where numeric attributes are discretized
+     * with the cut points found by the given filter.
+     * Values are mapped the same way Discretize maps them, the columns are shared.
+     *
+     * @param filter the discretize filter, its input format already determined
+     * @return the discretized view
+     * @throws Exception if the filter has not determined its output format
+     */
+    public ColumnarDataset discretize(Discretize filter) throws Exception {
+        ColumnarDataset view = new ColumnarDataset(filter.getOutputFormat(), m_NumRows, m_Columns);
+        view.m_CutPoints = new double[numAttributes()][];
+        view.m_Discretized = new boolean[numAttributes()];
+        for (int i = 0; i < numAttributes(); i++) {
+            if (i != classIndex() && m_Header.attribute(i).isNumeric()) {
+                view.m_Discretized[i] = true;
+                view.m_CutPoints[i] = filter.getCutPoints(i);
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Draws a uniform sample of the rows into the heap.
+     *
+     * @param maxRows the maximum number of rows in the sample
+     * @param random the random number generator
+     * @return the sampled instances, with the header of this dataset
+     */
+    public Instances sample(int maxRows, Random random) {
+        int size = Math.min(maxRows, m_NumRows);
+        int[] rows = new int[size];
+        for (int row = 0; row < m_NumRows; row++) {
+            if (row < size) {
+                rows[row] = row;
+            } else {
+                int j = random.nextInt(row + 1);
+                if (j < size) {
+                    rows[j] = row;
+                }
+            }
+        }
+        // read the columns in order
+        Arrays.sort(rows);
+
+        Instances sample = new Instances(m_Header, size);
+        for (int i = 0; i < size; i++) {
+            double[] vals = new double[numAttributes()];
+            for (int att = 0; att < vals.length; att++) {
+                vals[att] = rawValue(att, rows[i]);
+            }
+            sample.add(new Instance(1.0, vals));
+        }
+        return sample;
+    }
+
+    /**
+     * Returns the header of the dataset. Must not be modified.
+     *
+     * @return the header, an empty Instances
+     */
+    public Instances header() {
+        return m_Header;
+    }
+
+    public int numRows() {
+        return m_NumRows;
+    }
+
+    public int numAttributes() {
+        return m_Header.numAttributes();
+    }
+
+    public int classIndex() {
+        return m_Header.classIndex();
+    }
+
+    /**
+     * Returns a value of the dataset, in the encoding of Instance.value.
+     *
+     * @param att the index of the attribute
+     * @param row the index of the row
+     * @return the value
+     */
+    public double value(int att, int row) {
+        double value = rawValue(att, row);
+        if (m_Discretized == null || !m_Discretized[att] || Instance.isMissingValue(value)) {
+            return value;
+        }
+        double[] cutPoints = m_CutPoints[att];
+        if (cutPoints == null) {
+            return 0;
+        }
+        int j;
+        for (j = 0; j < cutPoints.length; j++) {
+            if (value <= cutPoints[j]) {
+                break;
+            }
+        }
+        return j;
+    }
+
+    /**
+     * Returns a value as stored in the column.
+     *
+     * @param att the index of the attribute
+     * @param row the index of the row
+     * @return the stored value
+     */
+    private double rawValue(int att, int row) {
+        return m_Columns[att][row >>> CHUNK_SHIFT].getDouble((row & CHUNK_MASK) * VALUE_SIZE);
+    }
+}
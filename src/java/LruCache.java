@@ -0,0 +1,86 @@
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded map evicting the least recently used entry,
+ * safe to be used by several threads at once.
+ * Counts the hits and misses of get.
+ */
+public class LruCache<K, V> implements Serializable {
+
+    /** The entries, in access order. */
+    private Entries<K, V> m_Entries;
+
+    /** Number of get that found an entry. */
+    private long m_Hits;
+
+    /** Number of get that found no entry. */
+    private long m_Misses;
+
+    /**
+     * @param capacity the maximum number of entries
+     */
+    public LruCache(int capacity) {
+        m_Entries = new Entries<K, V>(capacity);
+    }
+
+    /**
+     * Returns the value of a key, marking it as most recently used.
+     *
+     * @param key the key
+     * @return the value, null if there is no entry for the key
+     */
+    public synchronized V get(K key) {
+        V value = m_Entries.get(key);
+        if (value == null) {
+            m_Misses++;
+        } else {
+            m_Hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Adds an entry, evicting the least recently used one if full.
+     *
+     * @param key the key
+     * @param value the value, not null
+     */
+    public synchronized void put(K key, V value) {
+        m_Entries.put(key, value);
+    }
+
+    public synchronized int size() {
+        return m_Entries.size();
+    }
+
+    public synchronized void clear() {
+        m_Entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return m_Hits;
+    }
+
+    public synchronized long getMisses() {
+        return m_Misses;
+    }
+
+    /**
+     * LinkedHashMap in access order that removes its eldest entry when full.
+     */
+    private static class Entries<K, V> extends LinkedHashMap<K, V> {
+
+        private int m_Capacity;
+
+        Entries(int capacity) {
+            super(16, 0.75f, true);
+            m_Capacity = capacity;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > m_Capacity;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of predictions keyed by a long code, safe to be used by several threads at once.
+ * Each code has a single slot, picked by a hash of the code, so a lookup is one
+ * array read without lock, and a new entry evicts the one in its slot.
+ * Counts the hits and misses of get.
+ */
+public class PredictionCache implements Serializable {
+
+    /** The entries, a power of two of slots. */
+    private AtomicReferenceArray<Entry> m_Slots;
+
+    /** Number of get that found an entry. */
+    private AtomicLong m_Hits = new AtomicLong();
+
+    /** Number of get that found no entry. */
+    private AtomicLong m_Misses = new AtomicLong();
+
+    /**
+     * @param capacity the maximum number of entries, rounded up to a power of two
+     */
+    public PredictionCache(int capacity) {
+        int numSlots = 1;
+        while (numSlots < capacity) {
+            numSlots <<= 1;
+        }
+        m_Slots = new AtomicReferenceArray<Entry>(numSlots);
+    }
+
+    /**
+     * Returns the slot of a code.
+     *
+     * @param code the code
+     * @return the index of the slot
+     */
+    private int slot(long code) {
+        // murmur3 fmix64, so codes differing in high digits spread over the slots
+        code ^= code >>> 33;
+        code *= 0xff51afd7ed558ccdL;
+        code ^= code >>> 33;
+        code *= 0xc4ceb9fe1a85ec53L;
+        code ^= code >>> 33;
+        return (int) code & (m_Slots.length() - 1);
+    }
+
+    /**
+     * Returns the entry of a code.
+     *
+     * @param code the code
+     * @return the entry, null if the code has no entry
+     */
+    public Entry get(long code) {
+        Entry entry = m_Slots.get(slot(code));
+        if (entry != null && entry.code == code) {
+            m_Hits.incrementAndGet();
+            return entry;
+        }
+        m_Misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds an entry, replacing the entry in its slot.
+     *
+     * @param code the code
+     * @param value the value
+     */
+    public void put(long code, double value) {
+        m_Slots.set(slot(code), new Entry(code, value));
+    }
+
+    public long getHits() {
+        return m_Hits.get();
+    }
+
+    public long getMisses() {
+        return m_Misses.get();
+    }
+
+    /**
+     * Immutable pair of a code and its value.
+     */
+    public static class Entry implements Serializable {
+
+        final long code;
+
+        final double value;
+
+        Entry(long code, double value) {
+            this.code = code;
+            this.value = value;
+        }
+
+        public double value() {
+            return value;
+        }
+    }
+}
@@ -5,10 +5,17 @@
     import weka.core.Instance;
     import weka.core.Instances;
     import weka.core.SerializationHelper;
+    import weka.core.Utils;
     import weka.core.converters.ConverterUtils.DataSource;
     import weka.filters.supervised.instance.Resample;
 
+    import java.io.BufferedOutputStream;
+    import java.io.DataOutputStream;
+    import java.io.File;
     import java.io.FileInputStream;
+    import java.io.OutputStream;
+    import java.security.DigestOutputStream;
+    import java.security.MessageDigest;
     import java.util.Random;
 
     /**
@@ -17,9 +24,23 @@
     public class WekaAccessor {
 
         public Instances trainData, testData;
+        public ColumnarDataset columnarData;
         public Classifier classifier;
         Evaluation evaluation;
 
+        /** Time taken by the last build (all folds for cross validation), and whether its model came from the cache. */
+        long buildNanos;
+        boolean buildCached;
+
+        /** Time taken by the last evaluation classifying the test instances, not counting any build. */
+        long evaluateNanos;
+
+        /** Trained models, keyed by training data fingerprint, classifier class and options. */
+        LruCache<String, Classifier> modelCache = new LruCache<String, Classifier>(32);
+
+        /** Directory of trained models kept across runs, null if models are only cached in memory. */
+        String modelCacheDirectory = null;
+
         public WekaAccessor() {
             trainData = null;
             classifier = null;
@@ -41,6 +62,23 @@
             }
         }
 
+        public void convertToColumnar(String sourcePath, String columnarPath) {
+            try {
+                ColumnarDataset.convert(sourcePath, columnarPath);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        public void loadColumnarData(String path) {
+            columnarData = null;
+            try {
+                columnarData = ColumnarDataset.open(path);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
         public void removeAttributeAt(int position) {
             if (trainData == null) {
                 return;
@@ -97,16 +135,216 @@
             }
         }
 
+        public void buildCompiledMyID3Classifier() {
+            classifier = (Classifier)new compiledMyId3();
+            try {
+                classifier.buildClassifier(trainData);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        public void buildBaggedMyID3Classifier() {
+            classifier = (Classifier)new baggedMyId3();
+            try {
+                classifier.buildClassifier(trainData);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        public void buildColumnarMyID3Classifier() {
+            myId3 tree = new myId3();
+            classifier = tree;
+            try {
+                tree.buildClassifier(columnarData);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        public void buildColumnarContinuousMyID3Classifier() {
+            continuousMyId3 tree = new continuousMyId3();
+            classifier = tree;
+            try {
+                tree.buildClassifier(columnarData);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        public void setModelCacheDirectory(String directory) {
+            modelCacheDirectory = directory;
+        }
+
+        /**
+         * Builds classifier on data, unless a classifier of the same class and options
+         * was already built on the same data, in which case a copy of that model is used.
+         *
+         * @param data the training data
+         * @throws Exception if classifier can't be built successfully
+         */
+        void buildCachedClassifier(Instances data) throws Exception {
+            long start = System.nanoTime();
+            buildCached = true;
+            try {
+                buildModel(data);
+            } finally {
+                buildNanos = System.nanoTime() - start;
+            }
+        }
+
+        private void buildModel(Instances data) throws Exception {
+            String dataHash = fingerprint(data);
+            String key = dataHash + " " + classifier.getClass().getName()
+                    + " " + Utils.joinOptions(classifier.getOptions());
+            Classifier model = modelCache.get(key);
+            if (model != null) {
+                classifier = Classifier.makeCopy(model);
+                return;
+            }
+
+            String filename = null;
+            if (modelCacheDirectory != null) {
+                filename = new File(modelCacheDirectory, sha1(key) + ".model").getPath();
+                if (new File(filename).exists()) {
+                    Classifier untrained = classifier;
+                    loadModel(filename);
+                    if (classifier != untrained) {
+                        modelCache.put(key, Classifier.makeCopy(classifier));
+                        return;
+                    }
+                }
+            }
+
+            buildCached = false;
+            classifier.buildClassifier(data);
+            modelCache.put(key, Classifier.makeCopy(classifier));
+            if (filename != null) {
+                saveMode(filename);
+            }
+        }
+
+        /**
+         * @return hex SHA-1 digest of the UTF-8 bytes of text
+         */
+        static String sha1(String text) throws Exception {
+            return toHex(MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8")));
+        }
+
+        /**
+         * Computes the SHA-1 digest of the header, class index and every value and weight of a dataset.
+         *
+         * @param data the dataset
+         * @return hex fingerprint of the dataset
+         * @throws Exception if the digest isn't available
+         */
+        static String fingerprint(Instances data) throws Exception {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(new NullOutputStream(), digest)));
+            byte[] header = new Instances(data, 0).toString().getBytes("UTF-8");
+            out.writeInt(header.length);
+            out.write(header);
+            out.writeInt(data.classIndex());
+            out.writeInt(data.numInstances());
+            for (int i = 0; i < data.numInstances(); i++) {
+                Instance inst = data.instance(i);
+                out.writeInt(inst.numValues());
+                for (int j = 0; j < inst.numValues(); j++) {
+                    out.writeInt(inst.index(j));
+                    out.writeLong(Double.doubleToLongBits(inst.valueSparse(j)));
+                }
+                out.writeLong(Double.doubleToLongBits(inst.weight()));
+            }
+            out.close();
+            return toHex(digest.digest());
+        }
+
+        /**
+         * @return the bytes as lower case hex
+         */
+        static String toHex(byte[] bytes) {
+            StringBuffer hex = new StringBuffer();
+            for (int i = 0; i < bytes.length; i++) {
+                hex.append(Integer.toHexString((bytes[i] & 0xff) | 0x100).substring(1));
+            }
+            return hex.toString();
+        }
+
+        /**
+         * Output stream discarding everything, for digesting streams.
+         */
+        private static class NullOutputStream extends OutputStream {
+            public void write(int b) {
+            }
+
+            public void write(byte[] b, int off, int len) {
+            }
+        }
+
         public double[] test(Instances testSet) throws Exception {
-            classifier.buildClassifier(trainData);
+            buildCachedClassifier(trainData);
             evaluation = new Evaluation(trainData);
-            return evaluation.evaluateModel(classifier, testSet);
+            long start = System.nanoTime();
+            double[] predictions = evaluateModel(classifier, testSet);
+            evaluateNanos = System.nanoTime() - start;
+            return predictions;
         }
 
+        /**
+         * Evaluates a model on a test set, classifying all instances at once
+         * when the model can.
+         *
+         * @param model the model to be evaluated
+         * @param testSet the test set
+         * @return the prediction for each instance
+         * @throws Exception if the instances can't be classified
+         */
+        private double[] evaluateModel(Classifier model, Instances testSet) throws Exception {
+            if (!(model instanceof baggedMyId3)) {
+                return evaluation.evaluateModel(model, testSet);
+            }
+            double[][] distributions = ((baggedMyId3) model).distributionsForInstances(testSet);
+            double[] predictions = new double[testSet.numInstances()];
+            for (int i = 0; i < predictions.length; i++) {
+                predictions[i] = evaluation.evaluateModelOnceAndRecordPrediction(
+                        distributions[i], testSet.instance(i));
+            }
+            return predictions;
+        }
+
+        /**
+         * 10 fold cross validation, done as in Evaluation.crossValidateModel
+         * but timing the fold builds and the classification of each fold apart.
+         * The fold models are always built, never taken from the model cache.
+         *
+         * @throws Exception if a fold can't be built or evaluated
+         */
         public void crossValidation() throws Exception {
-            classifier.buildClassifier(trainData);
             evaluation = new Evaluation(trainData);
-            evaluation.crossValidateModel(classifier, testData, 10, new Random(1));
+            buildCached = false;
+            buildNanos = 0;
+            evaluateNanos = 0;
+            int numFolds = 10;
+            Random random = new Random(1);
+            Instances data = new Instances(testData);
+            data.randomize(random);
+            if (data.classAttribute().isNominal()) {
+                data.stratify(numFolds);
+            }
+            for (int i = 0; i < numFolds; i++) {
+                Instances train = data.trainCV(numFolds, i, random);
+                evaluation.setPriors(train);
+                long start = System.nanoTime();
+                Classifier model = Classifier.makeCopy(classifier);
+                model.buildClassifier(train);
+                buildNanos += System.nanoTime() - start;
+                Instances test = data.testCV(numFolds, i);
+                start = System.nanoTime();
+                evaluateModel(model, test);
+                evaluateNanos += System.nanoTime() - start;
+            }
         }
 
         public void percentageSplit(double percent) throws Exception  {
@@ -116,9 +354,11 @@
             int testSize = dataset.numInstances() - trainSize;
             Instances train = new Instances(dataset, 0, trainSize);
             Instances test = new Instances(dataset, trainSize, testSize);
-            classifier.buildClassifier(train);
+            buildCachedClassifier(train);
             evaluation = new Evaluation(train);
-            evaluation.evaluateModel(classifier, test);
+            long start = System.nanoTime();
+            evaluateModel(classifier, test);
+            evaluateNanos = System.nanoTime() - start;
         }
 
         public void loadModel(String filename) {
@@ -137,6 +377,31 @@
             }
         }
 
+        public double[] classify(Instances instances) throws Exception {
+            if (classifier instanceof baggedMyId3) {
+                return ((baggedMyId3) classifier).classifyInstances(instances);
+            }
+            double[] predictions = new double[instances.numInstances()];
+            for (int i = 0; i < predictions.length; i++) {
+                predictions[i] = classifier.classifyInstance(instances.instance(i));
+            }
+            return predictions;
+        }
+
+        public long getPredictionCacheHits() {
+            if (classifier instanceof compiledMyId3) {
+                return ((compiledMyId3) classifier).getCacheHits();
+            }
+            return 0;
+        }
+
+        public long getPredictionCacheMisses() {
+            if (classifier instanceof compiledMyId3) {
+                return ((compiledMyId3) classifier).getCacheMisses();
+            }
+            return 0;
+        }
+
         public double classify(Instance instance) {
             double ret = -1.0f;
             try {
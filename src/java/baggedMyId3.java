@@ -0,0 +1,282 @@
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bagged ensemble of myId3 trees
+ * All members are built in parallel from one shared columnar dataset,
+ * each member's bootstrap sample is kept as the number of copies of each row
+ * rather than as a resampled copy of the data as in weka's Bagging
+ */
+public class baggedMyId3 extends Classifier {
+
+    /** The members of the ensemble. */
+    private myId3[] m_Trees;
+
+    /** Number of classes of the training data. */
+    private int m_NumClasses;
+
+    /** Number of members to be built. */
+    private int m_NumIterations = 10;
+
+    /** Seed of the bootstrap samples. */
+    private int m_Seed = 1;
+
+    /** Number of threads building members, 0 for one per processor. */
+    private int m_NumSlots = 0;
+
+    public int getNumIterations() {
+        return m_NumIterations;
+    }
+
+    public void setNumIterations(int numIterations) {
+        m_NumIterations = numIterations;
+    }
+
+    public int getSeed() {
+        return m_Seed;
+    }
+
+    public void setSeed(int seed) {
+        m_Seed = seed;
+    }
+
+    public int getNumSlots() {
+        return m_NumSlots;
+    }
+
+    public void setNumSlots(int numSlots) {
+        m_NumSlots = numSlots;
+    }
+
+    public Enumeration listOptions() {
+
+        Vector<Option> newVector = new Vector<Option>();
+        newVector.addElement(new Option(
+                "\tNumber of trees.\n\t(default 10)",
+                "I", 1, "-I <num>"));
+        newVector.addElement(new Option(
+                "\tRandom number seed.\n\t(default 1)",
+                "S", 1, "-S <num>"));
+        newVector.addElement(new Option(
+                "\tNumber of threads building trees.\n\t(default 0 = one per processor)",
+                "num-slots", 1, "-num-slots <num>"));
+
+        Enumeration enu = super.listOptions();
+        while (enu.hasMoreElements()) {
+            newVector.addElement((Option) enu.nextElement());
+        }
+        return newVector.elements();
+    }
+
+    public void setOptions(String[] options) throws Exception {
+
+        String iterations = Utils.getOption('I', options);
+        m_NumIterations = iterations.length() != 0 ? Integer.parseInt(iterations) : 10;
+
+        String seed = Utils.getOption('S', options);
+        m_Seed = seed.length() != 0 ? Integer.parseInt(seed) : 1;
+
+        String slots = Utils.getOption("num-slots", options);
+        m_NumSlots = slots.length() != 0 ? Integer.parseInt(slots) : 0;
+
+        super.setOptions(options);
+    }
+
+    public String[] getOptions() {
+
+        ArrayList<String> options = new ArrayList<String>();
+        options.add("-I");
+        options.add("" + m_NumIterations);
+        options.add("-S");
+        options.add("" + m_Seed);
+        options.add("-num-slots");
+        options.add("" + m_NumSlots);
+        for (String option : super.getOptions()) {
+            options.add(option);
+        }
+        return options.toArray(new String[options.size()]);
+    }
+
+    /**
+     * Builds the ensemble, the instances are copied once into a
+     * columnar dataset shared by all members.
+     *
+     * @param data the training data
+     * @throws Exception if classifier can't be built successfully
+     */
+    public void buildClassifier(Instances data) throws Exception {
+
+        // can classifier handle the data?
+        getCapabilities().testWithFail(data);
+
+        buildClassifier(ColumnarDataset.fromInstances(data));
+    }
+
+    /**
+     * Builds the ensemble from a columnar dataset.
+     *
+     * @param data the training data, read by all members at once
+     * @throws Exception if a member can't be built successfully
+     */
+    public void buildClassifier(final ColumnarDataset data) throws Exception {
+
+        m_NumClasses = data.header().numClasses();
+        m_Trees = new myId3[m_NumIterations];
+
+        // draw the seeds up front so the members don't depend on the thread schedule
+        Random random = new Random(m_Seed);
+        final long[] seeds = new long[m_NumIterations];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        int numSlots = m_NumSlots > 0 ? m_NumSlots : Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(numSlots);
+        try {
+            List<Future<myId3>> members = new ArrayList<Future<myId3>>();
+            for (int i = 0; i < m_NumIterations; i++) {
+                final long seed = seeds[i];
+                members.add(pool.submit(new Callable<myId3>() {
+                    public myId3 call() throws Exception {
+                        myId3 tree = new myId3();
+                        tree.buildClassifier(data, bootstrap(data.numRows(), new Random(seed)));
+                        return tree;
+                    }
+                }));
+            }
+            for (int i = 0; i < m_NumIterations; i++) {
+                try {
+                    m_Trees[i] = members.get(i).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Draws a bootstrap sample as large as the data.
+     *
+     * @param numRows the number of rows of the data
+     * @param random the random number generator
+     * @return the number of times each row is drawn
+     */
+    private static int[] bootstrap(int numRows, Random random) {
+
+        int[] weights = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            weights[random.nextInt(numRows)]++;
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the fraction of members voting for each class.
+     *
+     * @param instance the instance to be classified
+     * @return the class distribution
+     */
+    public double[] distributionForInstance(Instance instance) {
+
+        double[] votes = new double[m_NumClasses];
+        for (int i = 0; i < m_Trees.length; i++) {
+            double classValue = m_Trees[i].classifyInstance(instance);
+            if (!Instance.isMissingValue(classValue)) {
+                votes[(int) classValue]++;
+            }
+        }
+        if (Utils.sum(votes) > 0) {
+            Utils.normalize(votes);
+        }
+        return votes;
+    }
+
+    /**
+     * Classifies many instances at once.
+     *
+     * @param data the instances to be classified
+     * @return the class with most votes for each instance, missing if no member voted
+     */
+    public double[] classifyInstances(Instances data) {
+
+        int[] votes = countVotes(data);
+        double[] classValues = new double[data.numInstances()];
+        for (int j = 0; j < classValues.length; j++) {
+            int offset = j * m_NumClasses;
+            int best = 0;
+            for (int k = 1; k < m_NumClasses; k++) {
+                if (votes[offset + k] > votes[offset + best]) {
+                    best = k;
+                }
+            }
+            classValues[j] = votes[offset + best] > 0 ? best : Instance.missingValue();
+        }
+        return classValues;
+    }
+
+    /**
+     * Returns the class distributions of many instances at once,
+     * the same as distributionForInstance on each instance.
+     *
+     * @param data the instances to be classified
+     * @return the fraction of members voting for each class, for each instance
+     */
+    public double[][] distributionsForInstances(Instances data) {
+
+        int[] votes = countVotes(data);
+        double[][] distributions = new double[data.numInstances()][m_NumClasses];
+        for (int j = 0; j < distributions.length; j++) {
+            int offset = j * m_NumClasses;
+            for (int k = 0; k < m_NumClasses; k++) {
+                distributions[j][k] = votes[offset + k];
+            }
+            if (Utils.sum(distributions[j]) > 0) {
+                Utils.normalize(distributions[j]);
+            }
+        }
+        return distributions;
+    }
+
+    /**
+     * Counts the votes of the members for many instances.
+     * The votes are counted member by member over all instances,
+     * so each tree is walked while it is still in cache.
+     *
+     * @param data the instances to be classified
+     * @return the votes for each class of each instance, instance by instance
+     */
+    private int[] countVotes(Instances data) {
+
+        int numInstances = data.numInstances();
+        int[] votes = new int[numInstances * m_NumClasses];
+        for (int i = 0; i < m_Trees.length; i++) {
+            myId3 tree = m_Trees[i];
+            for (int j = 0; j < numInstances; j++) {
+                double classValue = tree.classifyInstance(data.instance(j));
+                if (!Instance.isMissingValue(classValue)) {
+                    votes[j * m_NumClasses + (int) classValue]++;
+                }
+            }
+        }
+        return votes;
+    }
+}
@@ -3,8 +3,11 @@ import weka.classifiers.meta.FilteredClassifier;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.NoSupportForMissingValuesException;
+import weka.filters.Filter;
 import weka.filters.supervised.attribute.Discretize;
 
+import java.util.Random;
+
 /**
  * Created by user on 28/09/2015.
  */
@@ -12,6 +15,9 @@ public class continuousMyId3 extends Classifier {
 
     FilteredClassifier m_root = null;
 
+    /** Number of rows sampled from a columnar dataset to find the cut points. */
+    int m_DiscretizeSampleSize = 100000;
+
     public continuousMyId3() {
         this.m_root = new FilteredClassifier();
         m_root.setFilter(new Discretize());
@@ -23,6 +29,26 @@ public class continuousMyId3 extends Classifier {
         m_root.buildClassifier(data);
     }
 
+    /**
+     * Builds the classifier from a columnar dataset.
+     * The cut points are found on a sample of the rows, the tree is
+     * then built on all rows discretized with those cut points.
+     *
+     * @param data the training data
+     * @throws Exception if classifier can't be built successfully
+     */
+    public void buildClassifier(ColumnarDataset data) throws Exception {
+        Instances sample = data.sample(m_DiscretizeSampleSize, new Random(1));
+        Discretize discretize = new Discretize();
+        discretize.setInputFormat(sample);
+        Filter.useFilter(sample, discretize);
+
+        myId3 tree = new myId3();
+        tree.buildClassifier(data.discretize(discretize));
+        m_root.setFilter(discretize);
+        m_root.setClassifier(tree);
+    }
+
     @Override
     public double classifyInstance(Instance instance) throws Exception{
         return m_root.classifyInstance(instance);
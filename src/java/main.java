@@ -9,9 +9,7 @@ import weka.classifiers.trees.J48;
 import weka.classifiers.trees.j48.*;
 import weka.core.Instances;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -58,76 +56,72 @@ public class main {
         dataNames.add("Weather Numeric");
         dataNames.add("Weather Numeric Missing");
 
-        String hasil = "";
-        WekaAccessor wa = new WekaAccessor();
+        String pathReport = "C:\\Users\\user\\Desktop\\hasil";
+        String pathBaseline = "C:\\Users\\user\\Desktop\\baseline.csv";
+        String[] modeNames = {"Training Set", "Percentage split 70%", "Cross Validation"};
 
-        for (int j = 0; j < datas.size(); j++) {
-            hasil += "=======================================================================\n";
-            hasil += "                         DATA SET : ";
-            hasil += dataNames.get(j) + "\n";
-            hasil += "=======================================================================\n";
+        BenchmarkReport report;
+        try {
+            report = new BenchmarkReport(pathReport);
+            if (new File(pathBaseline).exists()) {
+                report.loadBaseline(pathBaseline);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        WekaAccessor wa = new WekaAccessor();
+        try {
+            for (int j = 0; j < datas.size(); j++) {
+                report.text("=======================================================================\n");
+                report.text("                         DATA SET : ");
+                report.text(dataNames.get(j) + "\n");
+                report.text("=======================================================================\n");
 
-            wa.loadData(datas.get(j));
-            Instances dataset = new Instances(wa.trainData);
+                wa.loadData(datas.get(j));
+                Instances dataset = new Instances(wa.trainData);
 
-            String summary = "";
-            for (int i = 0; i < classifiers.size(); i++) {
-                //WekaAccessor wa = new WekaAccessor();
-                //wa.loadData(datas.get(j));
-                //wa.supervisedResample();
-                wa.trainData = new Instances(dataset);
-                wa.testData = new Instances(dataset);
-                wa.classifier = classifiers.get(i);
-                summary = "-----------------------------------------------------------------------\n";
-                summary += "                         CLASSIFIER : " + classifierNames.get(i) + "\n";
-                summary += "-----------------------------------------------------------------------\n";
+                for (int i = 0; i < classifiers.size(); i++) {
+                    //WekaAccessor wa = new WekaAccessor();
+                    //wa.loadData(datas.get(j));
+                    //wa.supervisedResample();
+                    wa.trainData = new Instances(dataset);
+                    wa.testData = new Instances(dataset);
+                    wa.classifier = classifiers.get(i);
+                    report.text("-----------------------------------------------------------------------\n");
+                    report.text("                         CLASSIFIER : " + classifierNames.get(i) + "\n");
+                    report.text("-----------------------------------------------------------------------\n");
 
-                for (int k=0; k<3; k++)
-                    try {
-                        switch (k) {
-                            case 0:
-                                summary += "TEST EVALUATION : Training Set";
-                                wa.test(wa.trainData);
-                                summary += wa.evaluation.toSummaryString() +
-                                        System.lineSeparator();
-                                break;
-                            case 1:
-                                summary += "TEST EVALUATION : Percentage split 70%";
-                                wa.percentageSplit(70);
-                                summary += wa.evaluation.toSummaryString() +
-                                        System.lineSeparator();
-                                break;
-                            case 2:
-                                summary += "TEST EVALUATION : Cross Validation";
-                                wa.crossValidation();
-                                summary += wa.evaluation.toSummaryString() +
-                                        System.lineSeparator();
-                                break;
+                    for (int k=0; k<3; k++)
+                        try {
+                            report.text("TEST EVALUATION : " + modeNames[k]);
+                            long heapBefore = BenchmarkReport.resetPeakHeap();
+                            switch (k) {
+                                case 0:
+                                    wa.test(wa.trainData);
+                                    break;
+                                case 1:
+                                    wa.percentageSplit(70);
+                                    break;
+                                case 2:
+                                    wa.crossValidation();
+                                    break;
+                            }
+                            report.text(wa.evaluation.toSummaryString() +
+                                    System.lineSeparator());
+                            report.record(dataNames.get(j), classifierNames.get(i), modeNames[k],
+                                    wa.buildCached, wa.buildNanos, wa.evaluateNanos,
+                                    wa.evaluation.numInstances(), BenchmarkReport.peakHeap(heapBefore),
+                                    wa.evaluation.pctCorrect());
+                        } catch (Exception e) {
+                            report.text("\n" + e.getMessage() + "\n\n");
                         }
-                    } catch (Exception e) {
-                        summary += "\n" + e.getMessage() + "\n\n";
-                    }
+                }
 
-                hasil += summary;
+                report.text("=======================================================================\n\n\n\n\n");
             }
-
-            hasil += "=======================================================================\n\n\n\n\n";
-        }
-        saveToFile(hasil, "C:\\Users\\user\\Desktop\\hasil.txt");
-    }
-
-    public static void saveToFile(String data, String filename) {
-        try {
-            File file = new File(filename);
-            if (!file.exists()) {
-                file.createNewFile();
-            }
-            FileWriter fw = new FileWriter(file.getAbsoluteFile());
-            BufferedWriter bw = new BufferedWriter(fw);
-            bw.write(data);
-            bw.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+        } finally {
+            report.close();
         }
     }
 }
\ No newline at end of file
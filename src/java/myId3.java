@@ -1,5 +1,6 @@
 import weka.classifiers.Classifier;
 import weka.core.Attribute;
+import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.NoSupportForMissingValuesException;
@@ -7,6 +8,7 @@ import weka.core.Utils;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Set;
 
 /**
  * Modified weka's ID3
@@ -55,6 +57,55 @@ public class myId3
         makeTree(data,attributes,Instance.missingValue(),data.classAttribute());
     }
 
+    /**
+     * Builds Id3 decision tree classifier from a columnar dataset,
+     * scanning its columns rather than copying the trainData into the heap.
+     * Builds the same tree as buildClassifier(Instances) on the same trainData.
+     * The values stay off the heap, but the row partition of the nodes
+     * takes two int per row on the heap.
+     *
+     * @param data the training trainData
+     * @exception Exception if classifier can't be built successfully
+     */
+    public void buildClassifier(ColumnarDataset data) throws Exception {
+        buildClassifier(data, null);
+    }
+
+    /**
+     * Builds Id3 decision tree classifier from a columnar dataset where each
+     * row is counted as many times as its weight, as if the trainData
+     * held that many copies of the row.
+     *
+     * @param data the training trainData
+     * @param weights the number of copies of each row, null for one copy each
+     * @exception Exception if classifier can't be built successfully
+     */
+    public void buildClassifier(ColumnarDataset data, int[] weights) throws Exception {
+
+        // can classifier handle the trainData? only the header is tested
+        Capabilities capabilities = getCapabilities();
+        capabilities.setMinimumNumberInstances(0);
+        capabilities.testWithFail(data.header());
+
+        // skip rows with missing class or no copies
+        int[] rows = new int[data.numRows()];
+        int numRows = 0;
+        for (int row = 0; row < data.numRows(); row++) {
+            if (!Instance.isMissingValue(data.value(data.classIndex(), row))
+                    && (weights == null || weights[row] > 0)) {
+                rows[numRows++] = row;
+            }
+        }
+
+        Instances header = data.header();
+        ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+        for (int i = 0; i < header.numAttributes(); i++) {
+            if (i != header.classIndex()) attributes.add(header.attribute(i));
+        }
+        makeTree(data, weights, rows, new int[numRows], 0, numRows, attributes,
+                Instance.missingValue(), header.classAttribute());
+    }
+
     /**
      * Method for building an Id3 tree.
      *
@@ -114,6 +165,87 @@ public class myId3
         }
     }
 
+    /**
+     * Method for building an Id3 tree from a columnar dataset.
+     * The rows reaching this node are rows[start..end), they are
+     * reordered by the value of the selected attribute for the successors.
+     *
+     * @param data the training trainData
+     * @param weights the number of copies of each row, null for one copy each
+     * @param rows the rows of the trainData, grouped by node
+     * @param scratch buffer as large as rows used for reordering
+     * @param start first position in rows reaching this node
+     * @param end position after the last row reaching this node
+     * @param attributes the list of attribute that can be selected to make tree
+     * @param parentClassValue the parent class value
+     * @param classAttribute the attribute to be classified
+     * @exception Exception if decision tree can't be built successfully
+     */
+    private void makeTree(ColumnarDataset data, int[] weights, int[] rows, int[] scratch,
+                          int start, int end, ArrayList<Attribute> attributes,
+                          double parentClassValue, Attribute classAttribute) throws Exception {
+
+        m_ClassAttribute = classAttribute;
+        int classIndex = classAttribute.index();
+        double numInstances = 0;
+        for (int i = start; i < end; i++) {
+            numInstances += weights == null ? 1 : weights[rows[i]];
+        }
+
+        // Check if no instances have reached this node.
+        if (numInstances == 0) {
+            m_Attribute = null;
+            m_ClassValue = parentClassValue;
+            m_Distribution = new double[classAttribute.numValues()];
+            return;
+        }
+
+        m_Distribution = new double[classAttribute.numValues()];
+        for (int i = start; i < end; i++) {
+            m_Distribution[(int) data.value(classIndex, rows[i])] +=
+                    weights == null ? 1 : weights[rows[i]];
+        }
+        m_ClassValue = Utils.maxIndex(m_Distribution);
+
+        // if trainData is "pure" (entrophy equal 0) or no attribute left
+        if (m_Distribution[Utils.maxIndex(m_Distribution)] == numInstances
+                || attributes.size() == 0 ){
+            Utils.normalize(m_Distribution);
+            m_Attribute = null;
+            return;
+        };
+
+        double entropy = computeEntropy(m_Distribution, numInstances);
+        Utils.normalize(m_Distribution);
+
+        // Compute attribute with maximum information gain.
+        double[] infoGains = new double[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute att = attributes.get(i);
+            double[][] counts = countValues(data, weights, rows, start, end, att, classIndex);
+            infoGains[i] = entropy;
+            for (int j = 0; j < att.numValues(); j++) {
+                double splitInstances = Utils.sum(counts[j]);
+                if (splitInstances > 0) {
+                    infoGains[i] -= (splitInstances / numInstances) *
+                            computeEntropy(counts[j], splitInstances);
+                }
+            }
+        }
+        m_Attribute = attributes.get(Utils.maxIndex(infoGains));
+
+        int[] splitStart = splitRows(data, rows, scratch, start, end, m_Attribute);
+        m_Successors = new myId3[m_Attribute.numValues()];
+
+        ArrayList<Attribute> newAttributes = new ArrayList<Attribute>(attributes);
+        newAttributes.remove(m_Attribute);
+        for (int j = 0; j < m_Attribute.numValues(); j++) {
+            m_Successors[j] = new myId3();
+            m_Successors[j].makeTree(data, weights, rows, scratch, splitStart[j], splitStart[j + 1],
+                    newAttributes, m_ClassValue, classAttribute);
+        }
+    }
+
     /**
      * Classifies a given test instance using the decision tree.
      *
@@ -136,6 +268,21 @@ public class myId3
         }
     }
 
+    /**
+     * Collects the index of every attribute tested by the tree.
+     *
+     * @param indices the set the indices are added to
+     */
+    public void collectAttributeIndices(Set<Integer> indices) {
+
+        if (m_Attribute != null) {
+            indices.add(m_Attribute.index());
+            for (int j = 0; j < m_Successors.length; j++) {
+                m_Successors[j].collectAttributeIndices(indices);
+            }
+        }
+    }
+
     /**
      * Computes information gain for an attribute.
      *
@@ -174,14 +321,53 @@ public class myId3
             Instance inst = (Instance) instEnum.nextElement();
             classCounts[(int) inst.classValue()]++;
         }
+        return computeEntropy(classCounts, data.numInstances());
+    }
+
+    /**
+     * Computes the entropy of a class distribution.
+     *
+     * @param classCounts the number of instances of each class
+     * @param numInstances the total number of instances
+     * @return the entropy of the class distribution
+     */
+    private double computeEntropy(double[] classCounts, double numInstances) {
+
         double entropy = 0;
-        for (int j = 0; j < data.numClasses(); j++) {
+        for (int j = 0; j < classCounts.length; j++) {
             if (classCounts[j] > 0) {
                 entropy -= classCounts[j] * Utils.log2(classCounts[j]);
             }
         }
-        entropy /= (double) data.numInstances();
-        return entropy + Utils.log2(data.numInstances());
+        entropy /= numInstances;
+        return entropy + Utils.log2(numInstances);
+    }
+
+    /**
+     * Counts the instances of each class for each value of a nominal attribute,
+     * in a single scan of the attribute and class columns.
+     *
+     * @param data the trainData
+     * @param weights the number of copies of each row, null for one copy each
+     * @param rows the rows of the trainData
+     * @param start first position in rows to be counted
+     * @param end position after the last row to be counted
+     * @param att the attribute
+     * @param classIndex the index of the class attribute
+     * @return the counts, indexed by attribute value then class value
+     */
+    private double[][] countValues(ColumnarDataset data, int[] weights, int[] rows,
+                                   int start, int end, Attribute att, int classIndex) {
+
+        double[][] counts = new double[att.numValues()][data.header().numClasses()];
+        int attIndex = att.index();
+        for (int i = start; i < end; i++) {
+            int row = rows[i];
+            // missing value goes to the first value, as in splitData
+            counts[(int) data.value(attIndex, row)][(int) data.value(classIndex, row)] +=
+                    weights == null ? 1 : weights[row];
+        }
+        return counts;
     }
 
     /**
@@ -208,6 +394,38 @@ public class myId3
         return splitData;
     }
 
+    /**
+     * Reorders rows[start..end) by the values of a nominal attribute.
+     *
+     * @param data the trainData which is to be split
+     * @param rows the rows of the trainData
+     * @param scratch buffer as large as rows
+     * @param start first position in rows to be split
+     * @param end position after the last row to be split
+     * @param att the attribute to be used for splitting
+     * @return the first position of each value, followed by end
+     */
+    private int[] splitRows(ColumnarDataset data, int[] rows, int[] scratch,
+                            int start, int end, Attribute att) {
+
+        int attIndex = att.index();
+        int[] splitStart = new int[att.numValues() + 1];
+        for (int i = start; i < end; i++) {
+            splitStart[(int) data.value(attIndex, rows[i]) + 1]++;
+        }
+        splitStart[0] = start;
+        for (int j = 1; j < splitStart.length; j++) {
+            splitStart[j] += splitStart[j - 1];
+        }
+        int[] next = new int[att.numValues()];
+        System.arraycopy(splitStart, 0, next, 0, next.length);
+        for (int i = start; i < end; i++) {
+            scratch[next[(int) data.value(attIndex, rows[i])]++] = rows[i];
+        }
+        System.arraycopy(scratch, start, rows, start, end - start);
+        return splitStart;
+    }
+
     /**
      * Outputs a tree at a certain level.
      *
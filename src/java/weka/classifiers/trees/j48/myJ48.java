@@ -3,6 +3,11 @@ package weka.classifiers.trees.j48;
 import weka.classifiers.Classifier;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+
+import java.util.Enumeration;
+import java.util.Vector;
 
 /**
  * Created by user on 28/09/2015.
@@ -15,6 +20,39 @@ public class myJ48 extends Classifier{
         crit_val = critical_value;
     }
 
+    @Override
+    public Enumeration listOptions() {
+        Vector<Option> newVector = new Vector<Option>();
+        newVector.addElement(new Option(
+                "\tCritical value for pruning.",
+                "C", 1, "-C <critical value>"));
+
+        Enumeration enu = super.listOptions();
+        while (enu.hasMoreElements()) {
+            newVector.addElement((Option) enu.nextElement());
+        }
+        return newVector.elements();
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String cf = Utils.getOption('C', options);
+        if (cf.length() != 0) {
+            crit_val = Float.parseFloat(cf);
+        }
+        super.setOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        String[] superOptions = super.getOptions();
+        String[] options = new String[superOptions.length + 2];
+        options[0] = "-C";
+        options[1] = "" + crit_val;
+        System.arraycopy(superOptions, 0, options, 2, superOptions.length);
+        return options;
+    }
+
     @Override
     public void buildClassifier(Instances data) throws Exception {
         m_root = new myC45PruneableClassifierTree(new C45ModelSelection(0,data),true,crit_val,true,true);
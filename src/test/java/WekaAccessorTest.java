@@ -0,0 +1,81 @@
+import org.junit.Test;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the model cache of WekaAccessor.
+ */
+public class WekaAccessorTest {
+
+    private static final String WEATHER_HEADER =
+            "@relation weather.symbolic\n" +
+            "@attribute outlook {sunny, overcast, rainy}\n" +
+            "@attribute temperature {hot, mild, cool}\n" +
+            "@attribute humidity {high, normal}\n" +
+            "@attribute windy {TRUE, FALSE}\n" +
+            "@attribute play {yes, no}\n" +
+            "@data\n";
+
+    /**
+     * Makes a weather.nominal shaped dataset with random values.
+     */
+    private static Instances randomWeather(Random random, int numInstances) throws Exception {
+        Instances data = new Instances(new StringReader(WEATHER_HEADER));
+        data.setClassIndex(data.numAttributes() - 1);
+        for (int i = 0; i < numInstances; i++) {
+            double[] vals = new double[data.numAttributes()];
+            for (int j = 0; j < vals.length; j++) {
+                vals[j] = random.nextInt(data.attribute(j).numValues());
+            }
+            data.add(new Instance(1.0, vals));
+        }
+        return data;
+    }
+
+    @Test
+    public void sameShapeDatasetsHaveDifferentFingerprints() throws Exception {
+        Random random = new Random(1);
+        Set<String> data = new HashSet<String>();
+        Set<String> fingerprints = new HashSet<String>();
+        for (int i = 0; i < 20000; i++) {
+            Instances dataset = randomWeather(random, 14);
+            if (data.add(dataset.toString())) {
+                fingerprints.add(WekaAccessor.fingerprint(dataset));
+            }
+        }
+        assertEquals(data.size(), fingerprints.size());
+    }
+
+    @Test
+    public void fingerprintDependsOnContentOnly() throws Exception {
+        Instances dataset = randomWeather(new Random(1), 14);
+        assertEquals(WekaAccessor.fingerprint(dataset), WekaAccessor.fingerprint(new Instances(dataset)));
+
+        Instances changed = new Instances(dataset);
+        Instance inst = changed.instance(0);
+        inst.setValue(0, (inst.value(0) + 1) % changed.attribute(0).numValues());
+        assertNotEquals(WekaAccessor.fingerprint(dataset), WekaAccessor.fingerprint(changed));
+    }
+
+    @Test
+    public void differentDataIsNotServedFromCache() throws Exception {
+        WekaAccessor wa = new WekaAccessor();
+        wa.trainData = randomWeather(new Random(1), 14);
+        wa.classifier = new myId3();
+        wa.test(wa.trainData);
+        assertFalse(wa.buildCached);
+
+        wa.trainData = randomWeather(new Random(2), 14);
+        wa.test(wa.trainData);
+        assertFalse(wa.buildCached);
+    }
+}